@@ -0,0 +1,83 @@
+/******************************************************************************
+ *
+ * A CharTransform maps each char of a string to zero or more chars.  It is
+ * applied to every char of a StringEditor by StringEditor.transform, which
+ * may call it from several threads at once, so implementations must not
+ * depend on shared mutable state or on the chars around the one given.
+ *
+ * @author
+ * agent
+ *
+ * @version
+ *   October 19th, 2026
+ ******************************************************************************/
+import java.util.function.IntPredicate;
+
+public interface CharTransform
+{
+    /**
+     * Maps every letter to upper case.
+     **/
+    CharTransform UPPER_CASE = (c, out) -> out.append(Character.toUpperCase(c));
+
+    /**
+     * Maps every letter to lower case.
+     **/
+    CharTransform LOWER_CASE = (c, out) -> out.append(Character.toLowerCase(c));
+
+    /**
+     * Removes every ISO control char except line feeds and tabs.
+     **/
+    CharTransform STRIP_CONTROL = (c, out) ->
+    {
+        if(!Character.isISOControl(c) || c == '\n' || c == '\t')
+            out.append(c);
+    };
+
+
+    /**
+     * Appends the chars that replace c.
+     * @param c
+     *   The char to be transformed.
+     * @param out
+     *   Receives the replacement chars (nothing, to remove c).
+     **/
+    void apply(char c, StringBuilder out);
+
+
+    /**
+     * Replaces each tab with a fixed number of spaces.
+     * @param width
+     *   The number of spaces for each tab.
+     * @precondition
+     *   width >= 0.
+     * @return
+     *   The return value replaces tabs and keeps every other char.
+     **/
+    static CharTransform expandTabs(int width)
+    {
+        return (c, out) ->
+        {
+            if(c == '\t')
+                for(int i = 0; i < width; i++)
+                    out.append(' ');
+            else
+                out.append(c);
+        };
+    }
+
+
+    /**
+     * Replaces each char of one class with a given char.
+     * @param target
+     *   The class of chars to replace, for example Character::isWhitespace.
+     * @param replacement
+     *   The char put in place of each matching char.
+     * @return
+     *   The return value replaces matching chars and keeps every other char.
+     **/
+    static CharTransform replace(IntPredicate target, char replacement)
+    {
+        return (c, out) -> out.append(target.test(c) ? replacement : c);
+    }
+}
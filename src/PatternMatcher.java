@@ -0,0 +1,314 @@
+/******************************************************************************
+ *
+ * A PatternMatcher finds every occurrence of a fixed set of patterns in a
+ * char array in one pass, using an Aho-Corasick automaton that is built
+ * once when the matcher is created.  The automaton is stored in primitive
+ * arrays, so a scan does no boxing: the states nearest the root have a full
+ * row of transitions for ASCII chars, and every other transition is found
+ * through the sorted trie edges and the failure links.  Memory therefore
+ * grows with the total length of the patterns, not with the number of
+ * distinct chars in them.  Long arrays are split into chunks that are
+ * scanned in parallel; each chunk scans past its end by the length of the
+ * longest pattern so that matches crossing a split are still found.
+ *
+ * @author
+ * agent
+ *
+ * @version
+ *   October 19th, 2026
+ ******************************************************************************/
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class PatternMatcher
+{
+    // Largest number of chars a single fork-join task scans on its own.
+    private static final int SCAN_THRESHOLD = 1 << 16;
+
+    // Chars below this have a dense row of transitions in the states that
+    // have one.
+    private static final int DENSE = 128;
+
+    // Largest number of states, nearest the root, that get a dense row.
+    private static final int DENSE_STATES = 1 << 12;
+
+    private static final int[] NO_OUTPUTS = new int[0];
+
+    // Invariant of the PatternMatcher class:
+    //   1. patterns holds each distinct pattern once, in the order given.
+    //   2. Each state stands for a prefix of a pattern and the states are
+    //      numbered breadth first; state 0 is the empty prefix. Reading c in
+    //      state s leads to the state for the longest suffix of (string of s
+    //      + c) that is a prefix of a pattern.
+    //   3. edgeChars[s] is sorted, and the trie edge of s for edgeChars[s][i]
+    //      leads to edgeNext[s][i].
+    //   4. fail[s] is the state for the longest proper suffix of the string
+    //      of s that is a prefix of a pattern (0 for state 0).
+    //   5. For s < denseStates and c < DENSE, the state reached by reading c
+    //      in s is denseNext[s * DENSE + c].
+    //   6. outputs[s] holds the index of every pattern that is a suffix of
+    //      the string of s.
+    //   7. longest is the length of the longest pattern.
+    private final String[] patterns;
+    private final char[][] edgeChars;
+    private final int[][] edgeNext;
+    private final int[] fail;
+    private final int denseStates;
+    private final int[] denseNext;
+    private final int[][] outputs;
+    private final int longest;
+
+
+    /**
+     * PatternMatcher object is created.
+     * @param patterns
+     *   The strings to search for. Repeated patterns are searched for once.
+     * @postcondition
+     *   The automaton for the patterns has been built.
+     * @exception IllegalArgumentException
+     *   Indicates that one of the patterns is empty.
+     **/
+    public PatternMatcher(Collection<String> patterns)
+    {
+        this.patterns = new LinkedHashSet<>(patterns).toArray(new String[0]);
+        List<Map<Character, Integer>> edges = new ArrayList<>();
+        edges.add(new HashMap<>());
+        List<List<Integer>> ends = new ArrayList<>();
+        ends.add(new ArrayList<>());
+
+        // Build the trie, remembering which pattern ends at each state.
+        int max = 0;
+        for(int p = 0; p < this.patterns.length; p++)
+        {
+            String pattern = this.patterns[p];
+            if(pattern.isEmpty())
+                throw new IllegalArgumentException("pattern is empty");
+            max = Math.max(max, pattern.length());
+
+            int state = 0;
+            for(int i = 0; i < pattern.length(); i++)
+            {
+                Integer child = edges.get(state).get(pattern.charAt(i));
+                if(child == null)
+                {
+                    child = edges.size();
+                    edges.get(state).put(pattern.charAt(i), child);
+                    edges.add(new HashMap<>());
+                    ends.add(new ArrayList<>());
+                }
+                state = child;
+            }
+            ends.get(state).add(p);
+        }
+        longest = max;
+
+        // Visit the trie breadth first, numbering the states in that order. A
+        // state's failure link is shallower than the state, so its edges,
+        // dense row and outputs are final before the state uses them.
+        int states = edges.size();
+        edgeChars = new char[states][];
+        edgeNext = new int[states][];
+        fail = new int[states];
+        denseStates = Math.min(states, DENSE_STATES);
+        denseNext = new int[denseStates * DENSE];
+        outputs = new int[states][];
+        int[] trieState = new int[states];
+        int numbered = 1;
+        for(int state = 0; state < states; state++)
+        {
+            Map<Character, Integer> children = edges.get(trieState[state]);
+            char[] chars = new char[children.size()];
+            int i = 0;
+            for(char c : children.keySet())
+                chars[i++] = c;
+            Arrays.sort(chars);
+            edgeChars[state] = chars;
+            edgeNext[state] = new int[chars.length];
+            for(i = 0; i < chars.length; i++)
+            {
+                trieState[numbered] = children.get(chars[i]);
+                edgeNext[state][i] = numbered++;
+            }
+
+            outputs[state] = toArray(ends.get(trieState[state]),
+                    state == 0 ? NO_OUTPUTS : outputs[fail[state]]);
+            if(state < denseStates)
+            {
+                for(char c = 0; c < DENSE; c++)
+                {
+                    int child = edge(state, c);
+                    if(child < 0)
+                        child = state == 0 ? 0 : denseNext[fail[state] * DENSE + c];
+                    denseNext[state * DENSE + c] = child;
+                }
+            }
+            for(i = 0; i < chars.length; i++)
+                fail[edgeNext[state][i]] = state == 0 ? 0 : next(fail[state], chars[i]);
+        }
+    }
+
+
+    /**
+     * Finds every occurrence of the patterns in an array.
+     * @param text
+     *   The chars to search.
+     * @postcondition
+     *   text is unchanged.
+     * @return
+     *   The return value lists a Match for each occurrence, ordered by
+     *   position and, for the same position, by pattern length.
+     **/
+    public List<Match> findAll(char[] text)
+    {
+        if(patterns.length == 0)
+            return new ArrayList<>();
+        return ForkJoinPool.commonPool().invoke(new ScanTask(text, 0, text.length));
+    }
+
+
+    /**
+     * Returns the state reached by reading c in state.
+     **/
+    private int next(int state, char c)
+    {
+        while(true)
+        {
+            if(state < denseStates && c < DENSE)
+                return denseNext[state * DENSE + c];
+            int child = edge(state, c);
+            if(child >= 0 || state == 0)
+                return Math.max(child, 0);
+            state = fail[state];
+        }
+    }
+
+
+    /**
+     * Returns the state the trie edge of state for c leads to, or -1 if
+     * there is none.
+     **/
+    private int edge(int state, char c)
+    {
+        int i = Arrays.binarySearch(edgeChars[state], c);
+        return i >= 0 ? edgeNext[state][i] : -1;
+    }
+
+
+    /**
+     * Returns the given pattern indexes followed by inherited.
+     **/
+    private static int[] toArray(List<Integer> own, int[] inherited)
+    {
+        if(own.isEmpty())
+            return inherited;
+        int[] answer = new int[own.size() + inherited.length];
+        for(int i = 0; i < own.size(); i++)
+            answer[i] = own.get(i);
+        System.arraycopy(inherited, 0, answer, own.size(), inherited.length);
+        return answer;
+    }
+
+
+    /**
+     * A Match is one occurrence of a pattern.
+     **/
+    public static class Match
+    {
+        private final int position;
+        private final String pattern;
+
+        Match(int position, String pattern)
+        {
+            this.position = position;
+            this.pattern = pattern;
+        }
+
+        /**
+         * Accessor method to get the offset of the first char of the match.
+         **/
+        public int getPosition()
+        {
+            return position;
+        }
+
+        /**
+         * Accessor method to get the pattern that was found.
+         **/
+        public String getPattern()
+        {
+            return pattern;
+        }
+
+        @Override
+        public String toString()
+        {
+            return position + ":" + pattern;
+        }
+    }
+
+
+    /**
+     * A fork-join task that finds the matches starting in [from, to) of an
+     * array, splitting the range in half until it is no longer than
+     * SCAN_THRESHOLD.
+     **/
+    private class ScanTask extends RecursiveTask<List<Match>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final char[] text;
+        private final int from;
+        private final int to;
+
+        ScanTask(char[] text, int from, int to)
+        {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Match> compute()
+        {
+            if(to - from <= SCAN_THRESHOLD)
+                return scan();
+
+            int middle = (from + to) >>> 1;
+            ScanTask first = new ScanTask(text, from, middle);
+            ScanTask second = new ScanTask(text, middle, to);
+            second.fork();
+            List<Match> answer = first.compute();
+            answer.addAll(second.join());
+            return answer;
+        }
+
+        private List<Match> scan()
+        {
+            // A match starting before to may end up to longest - 1 chars past it.
+            int end = (int) Math.min(text.length, (long) to + longest - 1);
+            List<Match> answer = new ArrayList<>();
+            int state = 0;
+            for(int i = from; i < end; i++)
+            {
+                state = next(state, text[i]);
+                for(int p : outputs[state])
+                {
+                    int start = i - patterns[p].length() + 1;
+                    if(start >= from && start < to)
+                        answer.add(new Match(start, patterns[p]));
+                }
+            }
+            answer.sort(Comparator.comparingInt(Match::getPosition)
+                    .thenComparingInt(m -> m.getPattern().length()));
+            return answer;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/******************************************************************************
+ *
+ * StringDiff computes an edit script that turns one char array into
+ * another.  The common prefix and suffix are skipped a chunk at a time, and
+ * only the differing middle is handed to Myers' O(ND) difference algorithm,
+ * so two long strings that differ in a few places are compared in close to
+ * one pass.
+ *
+ * @author
+ * agent
+ *
+ * @version
+ *   October 19th, 2026
+ ******************************************************************************/
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class StringDiff
+{
+    // Number of chars compared at a time while skipping the common suffix.
+    private static final int CHUNK_SIZE = 4096;
+
+    // Largest edit distance searched for before the differing middle is
+    // reported as a single replacement instead of a minimal script.
+    private static final int MAX_DISTANCE = 4096;
+
+    // Marks a diagonal that has no valid end point for the current distance.
+    private static final int NONE = -1;
+
+
+    /**
+     * Computes the edits that turn source into target.
+     * @param source
+     *   The original chars.
+     * @param target
+     *   The chars the edits should produce.
+     * @postcondition
+     *   source and target are unchanged.
+     * @return
+     *   The return value lists non-overlapping edits in order of position,
+     *   with every offset counted in source. The list is empty if the arrays
+     *   are equal, and minimal unless the arrays differ in more than
+     *   MAX_DISTANCE chars.
+     **/
+    public static List<Edit> diff(char[] source, char[] target)
+    {
+        int prefix = Arrays.mismatch(source, target);
+        if(prefix == -1)
+            return new ArrayList<>();
+        int suffix = commonSuffix(source, target, prefix);
+
+        List<Edit> answer = new ArrayList<>();
+        myers(source, prefix, source.length - suffix,
+                target, prefix, target.length - suffix, answer);
+        return answer;
+    }
+
+
+    /**
+     * Returns the length of the common suffix of a and b that does not
+     * overlap their first prefix chars.
+     **/
+    private static int commonSuffix(char[] a, char[] b, int prefix)
+    {
+        int limit = Math.min(a.length, b.length) - prefix;
+        int answer = 0;
+        while(answer < limit)
+        {
+            int step = Math.min(CHUNK_SIZE, limit - answer);
+            int aEnd = a.length - answer;
+            int bEnd = b.length - answer;
+            if(Arrays.equals(a, aEnd - step, aEnd, b, bEnd - step, bEnd))
+            {
+                answer += step;
+                continue;
+            }
+            while(a[aEnd - 1] == b[bEnd - 1])
+            {
+                answer++;
+                aEnd--;
+                bEnd--;
+            }
+            return answer;
+        }
+        return answer;
+    }
+
+
+    /**
+     * Adds to answer the edits that turn a[aFrom, aTo) into b[bFrom, bTo),
+     * found with Myers' greedy algorithm. The furthest reaching point of each
+     * diagonal is kept for every distance so that the path can be traced back.
+     **/
+    private static void myers(char[] a, int aFrom, int aTo, char[] b, int bFrom, int bTo,
+            List<Edit> answer)
+    {
+        int n = aTo - aFrom;
+        int m = bTo - bFrom;
+        List<int[]> trace = new ArrayList<>();
+        int[] previous = null;
+
+        for(int d = 0; d <= n + m; d++)
+        {
+            if(d > MAX_DISTANCE)
+            {
+                answer.add(new Edit(aFrom, n, new String(b, bFrom, m)));
+                return;
+            }
+
+            // v[k + d] is the furthest x reached on diagonal k = x - y.
+            int[] v = new int[2 * d + 1];
+            Arrays.fill(v, NONE);
+            for(int k = -d; k <= d; k += 2)
+            {
+                int x = d == 0 ? 0 : start(previous, d, k, n, m);
+                if(x == NONE)
+                    continue;
+                int y = x - k;
+                while(x < n && y < m && a[aFrom + x] == b[bFrom + y])
+                {
+                    x++;
+                    y++;
+                }
+                v[k + d] = x;
+                if(x == n && y == m)
+                {
+                    trace.add(v);
+                    backtrack(trace, aFrom, b, bFrom, n, m, answer);
+                    return;
+                }
+            }
+            trace.add(v);
+            previous = v;
+        }
+    }
+
+
+    /**
+     * Returns the x at which diagonal k starts for distance d, after a step
+     * down from diagonal k + 1 (an insertion) or right from diagonal k - 1 (a
+     * deletion), or NONE if neither step stays within the n by m grid.
+     **/
+    private static int start(int[] previous, int d, int k, int n, int m)
+    {
+        if(stepsDown(previous, d, k, m))
+            return previous[k + d];
+        int right = k - 1 >= -(d - 1) ? previous[k + d - 2] : NONE;
+        return right == NONE || right + 1 > n ? NONE : right + 1;
+    }
+
+
+    /**
+     * Determines if diagonal k starts for distance d with a step down, which
+     * is when that step stays within the grid and reaches at least as far as
+     * a step right.
+     **/
+    private static boolean stepsDown(int[] previous, int d, int k, int m)
+    {
+        int down = k + 1 <= d - 1 ? previous[k + d] : NONE;
+        int right = k - 1 >= -(d - 1) ? previous[k + d - 2] : NONE;
+        if(down == NONE || down - k > m)
+            return false;
+        return right == NONE || down >= right + 1;
+    }
+
+
+    /**
+     * Walks the trace back from (n, m) to (0, 0) and adds the edits on the
+     * way, merged into runs, to answer.
+     **/
+    private static void backtrack(List<int[]> trace, int aFrom, char[] b, int bFrom,
+            int n, int m, List<Edit> answer)
+    {
+        // Each step is {x, y, 1 for an insertion of b[y] or 0 for a deletion
+        // of a[x]}, collected from last to first.
+        List<int[]> steps = new ArrayList<>();
+        int x = n;
+        int y = m;
+        for(int d = trace.size() - 1; d > 0; d--)
+        {
+            int[] previous = trace.get(d - 1);
+            int k = x - y;
+            if(stepsDown(previous, d, k, m))
+            {
+                x = previous[k + d];
+                y = x - (k + 1);
+                steps.add(new int[] { x, y, 1 });
+            }else
+            {
+                x = previous[k + d - 2];
+                y = x - (k - 1);
+                steps.add(new int[] { x, y, 0 });
+            }
+        }
+
+        int runFrom = -1;
+        int runDeleted = 0;
+        StringBuilder runInserted = new StringBuilder();
+        for(int i = steps.size() - 1; i >= 0; i--)
+        {
+            int[] step = steps.get(i);
+            int position = aFrom + step[0];
+            if(runFrom != -1 && position != runFrom + runDeleted)
+            {
+                answer.add(new Edit(runFrom, runDeleted, runInserted.toString()));
+                runFrom = -1;
+            }
+            if(runFrom == -1)
+            {
+                runFrom = position;
+                runDeleted = 0;
+                runInserted.setLength(0);
+            }
+            if(step[2] == 1)
+                runInserted.append(b[bFrom + step[1]]);
+            else
+                runDeleted++;
+        }
+        if(runFrom != -1)
+            answer.add(new Edit(runFrom, runDeleted, runInserted.toString()));
+    }
+
+
+    /**
+     * An Edit replaces deleteCount chars, starting at offset from of the
+     * original string, with the chars of insert.
+     **/
+    public static class Edit
+    {
+        private final int from;
+        private final int deleteCount;
+        private final String insert;
+
+        /**
+         * Edit object is created.
+         * @param from
+         *   The offset of the first char replaced.
+         * @param deleteCount
+         *   The number of chars removed.
+         * @param insert
+         *   The chars put in their place.
+         **/
+        public Edit(int from, int deleteCount, String insert)
+        {
+            this.from = from;
+            this.deleteCount = deleteCount;
+            this.insert = insert;
+        }
+
+        /**
+         * Accessor method to get the offset of the first char replaced.
+         **/
+        public int getFrom()
+        {
+            return from;
+        }
+
+        /**
+         * Accessor method to get the number of chars removed.
+         **/
+        public int getDeleteCount()
+        {
+            return deleteCount;
+        }
+
+        /**
+         * Accessor method to get the chars inserted.
+         **/
+        public String getInsert()
+        {
+            return insert;
+        }
+
+        @Override
+        public String toString()
+        {
+            return from + ":-" + deleteCount + "+\"" + insert + "\"";
+        }
+    }
+}
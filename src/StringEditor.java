@@ -17,16 +17,89 @@
  * @version
  *   October 8th, 2013
  ******************************************************************************/
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class StringEditor
 {
+    // Number of chars encoded into each buffer handed to a gathering write,
+    // and the number of buffers handed to each write call.
+    private static final int CHUNK_SIZE = 8192;
+    private static final int GATHER_COUNT = 16;
+
+    // Largest number of chars a single fork-join task transforms on its own.
+    private static final int TRANSFORM_THRESHOLD = 1 << 16;
+
+    // Largest number of chars kept in the cache of render. Margins are
+    // trimmed to fit, and a longer window is not cached at all.
+    private static final int RENDER_CACHE_LIMIT = 1 << 16;
+
+    // The polynomial content hash is computed modulo the Mersenne prime
+    // 2^61 - 1. Because the modulus is prime, the base has an inverse (by
+    // Fermat's little theorem) and chars can be taken off either end of a
+    // hash as well as added.
+    private static final long HASH_MODULUS = (1L << 61) - 1;
+    private static final long HASH_BASE = 0x0EB3A8F94C7D2165L;
+    private static final long HASH_BASE_INVERSE = power(HASH_BASE, HASH_MODULUS - 2);
+
     // Invariant of the StringEditor class:
     //   1. All link list char data to the left of the cursor is stored in leftList.
     //   2. All link list char data to the right of the cursor is stored in rightList.
     //   3. The current location of the cursor is stored in cursor.
+    //   4. leftLength and rightLength are the number of chars in leftList and
+    //      rightList.
+    //   5. If nothing has changed since the last save, dirtyFrom is
+    //      Integer.MAX_VALUE. Otherwise only the chars in [dirtyFrom, dirtyTo)
+    //      differ from the file at savedPath as it was left by that save; the
+    //      chars after dirtyTo are the saved chars shifted by (leftLength +
+    //      rightLength - savedLength). savedModified and savedKey are the
+    //      modification time and file key the file had after the save.
+    //   6. anchor is the offset of the end of the selection that is not the
+    //      cursor, or -1 if nothing is selected.
+    //   7. If renderText is not null, it holds the chars in [renderFrom,
+    //      renderFrom + renderText.length()). Edits keep it up to date.
+    //   8. leftHash and rightHash are the polynomial hashes of the chars in
+    //      leftList and rightList, and rightPower is HASH_BASE to the power
+    //      rightLength, all modulo HASH_MODULUS.
     private CharNode leftList;
     private CharNode rightList;
     private CharNode cursor;
+    private int leftLength;
+    private int rightLength;
+    private Path savedPath;
+    private int savedLength = -1;
+    private boolean savedSingleByte;
+    private FileTime savedModified;
+    private Object savedKey;
+    private int dirtyFrom = Integer.MAX_VALUE;
+    private int dirtyTo = -1;
+    private int anchor = -1;
+    private int renderFrom;
+    private StringBuilder renderText;
+    private long leftHash;
+    private long rightHash;
+    private long rightPower = 1;
 
 
     /**
@@ -55,30 +128,37 @@ public class StringEditor
     StringEditor(String left, String right)
     {
         CharNode head;
+        char[] chars;
         if(left != null && left.length() > 0)
         {
-            leftList = new CharNode(left.toCharArray()[0], null);
+            chars = left.toCharArray();
+            leftList = new CharNode(chars[0], null);
             head = leftList;
-            for(int i = 1; i < left.toCharArray().length; i++)
+            for(int i = 1; i < chars.length; i++)
             {
-                leftList.addNodeAfter(left.toCharArray()[i]);
+                leftList.addNodeAfter(chars[i]);
                 leftList = leftList.getLink();
             }
             leftList = head;
+            leftLength = left.length();
+            appendLeftHash(hashOf(leftList, leftLength), leftLength);
         }else{
             leftList = null;
         }
 
         if(right != null && right.length() > 0)
         {
-            rightList = new CharNode(right.toCharArray()[0], null);
+            chars = right.toCharArray();
+            rightList = new CharNode(chars[0], null);
             head = rightList;
-            for(int i = 1; i < right.toCharArray().length; i++)
+            for(int i = 1; i < chars.length; i++)
             {
-                rightList.addNodeAfter(right.toCharArray()[i]);
+                rightList.addNodeAfter(chars[i]);
                 rightList = rightList.getLink();
             }
             rightList = head;
+            rightLength = right.length();
+            prependRightHash(hashOf(rightList, rightLength), rightLength);
             cursor = rightList;
         }else{
             rightList = null;
@@ -126,10 +206,14 @@ public class StringEditor
      **/
     void insertChar(char c)
     {
-        if(!isCursorAtEnd())
-            CharNode.getLast(leftList).addNodeAfter(c);
+        CharNode last = CharNode.getLast(leftList);
+        if(last != null)
+            last.addNodeAfter(c);
         else
-            leftList = CharNode.listTailInsert(leftList, c);
+            leftList = new CharNode(c, null);
+        appendLeftHash(charHash(c), 1);
+        recordInsert(leftLength, 1, last == null ? leftList : last.getLink());
+        leftLength++;
     }
 
 
@@ -143,8 +227,11 @@ public class StringEditor
     {
         if(rightList != null)
         {
+            removeRightHash(charHash(rightList.getData()), 1);
             rightList = rightList.getLink();
             cursor = rightList;
+            rightLength--;
+            recordDelete(leftLength, 1);
         }
     }
 
@@ -158,7 +245,16 @@ public class StringEditor
     void backspace()
     {
         if(leftList != null)
-            CharNode.listTailRemove(leftList);
+        {
+            removeLeftHash(charHash(CharNode.getLast(leftList).getData()), 1);
+            // listTailRemove blanks a lone node rather than removing it.
+            if(leftList.getLink() == null)
+                leftList = null;
+            else
+                CharNode.listTailRemove(leftList);
+            leftLength--;
+            recordDelete(leftLength, 1);
+        }
     }
 
 
@@ -169,10 +265,17 @@ public class StringEditor
      **/
     void frontOfString()
     {
-        CharNode.getLast(leftList).setLink(rightList);
-        rightList = CharNode.listCopy(leftList);
-        leftList = null;
-        cursor = rightList;
+        if(!isCursorAtFront())
+        {
+            prependRightHash(leftHash, leftLength);
+            removeLeftHash(leftHash, leftLength);
+            CharNode.getLast(leftList).setLink(rightList);
+            rightList = CharNode.listCopy(leftList);
+            leftList = null;
+            cursor = rightList;
+            rightLength += leftLength;
+            leftLength = 0;
+        }
     }
 
 
@@ -184,9 +287,17 @@ public class StringEditor
     void endOfString()
     {
         if(!isCursorAtEnd()){
+            appendLeftHash(rightHash, rightLength);
+            removeRightHash(rightHash, rightLength);
             CharNode rightCopy = CharNode.listCopy(rightList);
-            CharNode.getLast(leftList).setLink(rightCopy);
+            if(leftList == null)
+                leftList = rightCopy;
+            else
+                CharNode.getLast(leftList).setLink(rightCopy);
             rightList = null;
+            cursor = rightList;
+            leftLength += rightLength;
+            rightLength = 0;
         }
     }
 
@@ -200,6 +311,9 @@ public class StringEditor
     {
         if(!isCursorAtFront())
         {
+            long moved = charHash(CharNode.getLast(leftList).getData());
+            removeLeftHash(moved, 1);
+            prependRightHash(moved, 1);
             if(leftList.getLink() == null)
             {
                 rightList = new CharNode(leftList.getData(),
@@ -221,6 +335,8 @@ public class StringEditor
                     cursor = rightList;
                 }
             }
+            leftLength--;
+            rightLength++;
         }
     }
 
@@ -234,8 +350,1271 @@ public class StringEditor
     {
         if(!isCursorAtEnd())
         {
+            removeRightHash(charHash(rightList.getData()), 1);
+            appendLeftHash(charHash(rightList.getData()), 1);
             leftList = CharNode.listTailInsert(leftList, rightList.getData());
             rightList = rightList.getLink();
+            cursor = rightList;
+            leftLength++;
+            rightLength--;
+        }
+    }
+
+
+    /**
+     * Returns the number of chars in the string.
+     * @postcondition
+     *   The object is unchanged.
+     **/
+    int length()
+    {
+        return leftLength + rightLength;
+    }
+
+
+    /**
+     * Returns the offset of the cursor, which is the number of chars to its
+     * left.
+     * @postcondition
+     *   The object is unchanged.
+     **/
+    int cursorPosition()
+    {
+        return leftLength;
+    }
+
+
+    /**
+     * Cursor is moved to a given offset by relinking the two lists, without
+     * copying any nodes.
+     * @param offset
+     *   The number of chars that should be to the left of the cursor.
+     * @postcondition
+     *   The cursor is now at offset.
+     * @exception IllegalArgumentException
+     *   Indicates that offset is negative or past the end of the string.
+     **/
+    void moveCursorTo(int offset)
+    {
+        checkRange(offset, offset);
+        if(offset < leftLength)
+        {
+            // Move the nodes after position offset of leftList to the front
+            // of rightList.
+            CharNode moved;
+            if(offset == 0)
+            {
+                moved = leftList;
+                leftList = null;
+            }else
+            {
+                CharNode before = CharNode.listPosition(leftList, offset);
+                moved = before.getLink();
+                before.setLink(null);
+            }
+            long movedHash = hashOf(moved, leftLength - offset);
+            removeLeftHash(movedHash, leftLength - offset);
+            prependRightHash(movedHash, leftLength - offset);
+            CharNode.getLast(moved).setLink(rightList);
+            rightList = moved;
+        }else if(offset > leftLength)
+        {
+            // Move the first (offset - leftLength) nodes of rightList to the
+            // tail of leftList.
+            CharNode moved = rightList;
+            long movedHash = hashOf(moved, offset - leftLength);
+            removeRightHash(movedHash, offset - leftLength);
+            appendLeftHash(movedHash, offset - leftLength);
+            CharNode last = CharNode.listPosition(rightList, offset - leftLength);
+            rightList = last.getLink();
+            last.setLink(null);
+            if(leftList == null)
+                leftList = moved;
+            else
+                CharNode.getLast(leftList).setLink(moved);
+        }
+        cursor = rightList;
+        rightLength = leftLength + rightLength - offset;
+        leftLength = offset;
+    }
+
+
+    /**
+     * Sets the anchor of the selection at the cursor. The selection is then
+     * everything between the anchor and the cursor, wherever it moves.
+     * @postcondition
+     *   The anchor is at the cursor position. Later edits before the anchor
+     *   shift it along with the text.
+     **/
+    void setAnchor()
+    {
+        anchor = leftLength;
+    }
+
+
+    /**
+     * Clears the selection.
+     * @postcondition
+     *   Nothing is selected.
+     **/
+    void clearAnchor()
+    {
+        anchor = -1;
+    }
+
+
+    /**
+     * Determines if there is a selection.
+     * @postcondition
+     *   The object is unchanged.
+     * @return
+     *   The return value is true if the anchor has been set.
+     **/
+    boolean hasSelection()
+    {
+        return anchor >= 0;
+    }
+
+
+    /**
+     * Removes the chars in [from, to) by unlinking them as one run of nodes.
+     * @param from
+     *   The offset of the first char to remove.
+     * @param to
+     *   The offset after the last char to remove.
+     * @postcondition
+     *   The chars have been removed. The cursor stays next to the same chars,
+     *   or at from if it was inside the range.
+     * @exception IllegalArgumentException
+     *   Indicates that the range is not within the string.
+     **/
+    void deleteRange(int from, int to)
+    {
+        checkRange(from, to);
+        if(from == to)
+            return;
+
+        int oldCursor = leftLength;
+        int count = to - from;
+        moveCursorTo(from);
+        removeRightHash(hashOf(rightList, count), count);
+        rightList = CharNode.listPosition(rightList, count).getLink();
+        cursor = rightList;
+        rightLength -= count;
+        recordDelete(from, count);
+
+        if(oldCursor >= to)
+            moveCursorTo(oldCursor - count);
+        else if(oldCursor < from)
+            moveCursorTo(oldCursor);
+    }
+
+
+    /**
+     * Copies the chars in [from, to) into a new list.
+     * @param from
+     *   The offset of the first char to copy.
+     * @param to
+     *   The offset after the last char to copy.
+     * @postcondition
+     *   The object is unchanged.
+     * @return
+     *   The return value is an array where the [0] element is a head reference
+     *   and the [1] element a tail reference for the copy (both null if the
+     *   range is empty). The copy shares no nodes with the string.
+     * @exception IllegalArgumentException
+     *   Indicates that the range is not within the string.
+     **/
+    CharNode[] copyRange(int from, int to)
+    {
+        checkRange(from, to);
+        CharNode[] answer = new CharNode[2];
+        int offset = 0;
+        for(CharNode list : new CharNode[] { leftList, rightList })
+        {
+            for(CharNode node = list; node != null && offset < to; node = node.getLink())
+            {
+                if(offset >= from)
+                {
+                    if(answer[0] == null)
+                    {
+                        answer[0] = new CharNode(node.getData(), null);
+                        answer[1] = answer[0];
+                    }else
+                    {
+                        answer[1].addNodeAfter(node.getData());
+                        answer[1] = answer[1].getLink();
+                    }
+                }
+                offset++;
+            }
+        }
+        return answer;
+    }
+
+
+    /**
+     * Copies the selection.
+     * @postcondition
+     *   The object is unchanged.
+     * @return
+     *   The return value is the head/tail pair of a copy of the chars between
+     *   the anchor and the cursor.
+     * @exception IllegalStateException
+     *   Indicates that there is no selection.
+     **/
+    CharNode[] copy()
+    {
+        if(!hasSelection())
+            throw new IllegalStateException("nothing is selected");
+        return copyRange(Math.min(anchor, leftLength), Math.max(anchor, leftLength));
+    }
+
+
+    /**
+     * Removes the selection.
+     * @postcondition
+     *   The chars between the anchor and the cursor have been removed, the
+     *   cursor is where they were and nothing is selected.
+     * @return
+     *   The return value is the head/tail pair of a copy of the removed chars.
+     * @exception IllegalStateException
+     *   Indicates that there is no selection.
+     **/
+    CharNode[] cut()
+    {
+        CharNode[] answer = copy();
+        deleteRange(Math.min(anchor, leftLength), Math.max(anchor, leftLength));
+        clearAnchor();
+        return answer;
+    }
+
+
+    /**
+     * Inserts a copy of a list prior to the cursor.
+     * @param fragment
+     *   The head/tail pair of the list to insert, as returned by copyRange,
+     *   copy or cut. The fragment itself is not linked into the string, so it
+     *   may be pasted again.
+     * @postcondition
+     *   The cursor follows the inserted chars.
+     **/
+    void paste(CharNode[] fragment)
+    {
+        if(fragment[0] == null)
+            return;
+
+        // Copy the fragment, counting and hashing its chars on the same pass.
+        CharNode head = new CharNode(fragment[0].getData(), null);
+        CharNode tail = head;
+        int count = 1;
+        long hash = charHash(fragment[0].getData());
+        for(CharNode node = fragment[0].getLink(); node != null; node = node.getLink())
+        {
+            tail.addNodeAfter(node.getData());
+            tail = tail.getLink();
+            count++;
+            hash = hashStep(hash, node.getData());
+        }
+
+        appendLeftHash(hash, count);
+        if(leftList == null)
+            leftList = head;
+        else
+            CharNode.getLast(leftList).setLink(head);
+        recordInsert(leftLength, count, head);
+        leftLength += count;
+    }
+
+
+    /**
+     * Computes the edits that turn this string into the string of another
+     * editor.
+     * @param other
+     *   The editor holding the newer version of the string.
+     * @postcondition
+     *   Both editors are unchanged.
+     * @return
+     *   The return value lists non-overlapping edits in order of position,
+     *   with offsets counted in this string. Applying them with applyPatch
+     *   makes this string equal to the string of other.
+     **/
+    List<StringDiff.Edit> diff(StringEditor other)
+    {
+        return StringDiff.diff(contentToArray(), other.contentToArray());
+    }
+
+
+    /**
+     * Applies the edits returned by diff, starting from the last one so that
+     * the offsets of the others stay valid.
+     * @param patch
+     *   Non-overlapping edits in order of position, with offsets counted in
+     *   the string as it is before the patch.
+     * @postcondition
+     *   Every edit has been applied. The cursor stays next to the same chars,
+     *   or at the start of an edit that replaced the chars around it.
+     * @exception IllegalArgumentException
+     *   Indicates that an edit is not within the string. The edits after it
+     *   have already been applied.
+     **/
+    void applyPatch(List<StringDiff.Edit> patch)
+    {
+        for(int i = patch.size() - 1; i >= 0; i--)
+        {
+            StringDiff.Edit edit = patch.get(i);
+            deleteRange(edit.getFrom(), edit.getFrom() + edit.getDeleteCount());
+            if(!edit.getInsert().isEmpty())
+            {
+                int oldCursor = leftLength;
+                moveCursorTo(edit.getFrom());
+                paste(buildList(edit.getInsert()));
+                if(oldCursor > edit.getFrom())
+                    moveCursorTo(oldCursor + edit.getInsert().length());
+                else
+                    moveCursorTo(oldCursor);
+            }
+        }
+    }
+
+
+    /**
+     * Applies a transform to every char of the string. The string is split
+     * into chunks that are transformed in parallel, and the resulting lists
+     * are linked back together.
+     * @param transform
+     *   The mapping applied to each char.
+     * @postcondition
+     *   Each char has been replaced by the chars transform gives for it. The
+     *   cursor follows the chars produced from the chars that were to its left
+     *   and precedes those produced from the chars that were to its right. If
+     *   the anchor is set, it is moved the same way, so the selection holds
+     *   the chars produced from the chars it held.
+     **/
+    void transform(CharTransform transform)
+    {
+        // Each side is split at the anchor as well, so that the anchor can be
+        // placed after the chars produced from the chars before it.
+        char[] leftChars = listToArray(leftList, leftLength);
+        char[] rightChars = listToArray(rightList, rightLength);
+        int leftSplit = anchor >= 0 && anchor < leftLength ? anchor : leftLength;
+        int rightSplit = anchor > leftLength ? anchor - leftLength : 0;
+        TransformTask[] tasks = {
+            new TransformTask(leftChars, 0, leftSplit, transform),
+            new TransformTask(leftChars, leftSplit, leftLength, transform),
+            new TransformTask(rightChars, 0, rightSplit, transform),
+            new TransformTask(rightChars, rightSplit, rightLength, transform)
+        };
+        ForkJoinTask.invokeAll(tasks);
+        CharNode[] newLeft = linkLists(tasks[0].join(), tasks[1].join());
+        CharNode[] newRight = linkLists(tasks[2].join(), tasks[3].join());
+
+        int newAnchor = anchor;
+        if(anchor >= 0)
+            newAnchor = anchor < leftLength ? tasks[0].count
+                    : tasks[0].count + tasks[1].count + tasks[2].count;
+        recordDelete(0, leftLength + rightLength);
+        recordInsert(0, tasks[0].count + tasks[1].count + tasks[2].count + tasks[3].count,
+                null);
+        anchor = newAnchor;
+        leftList = newLeft[0];
+        rightList = newRight[0];
+        cursor = rightList;
+        leftLength = tasks[0].count + tasks[1].count;
+        rightLength = tasks[2].count + tasks[3].count;
+        leftHash = concatHash(tasks[0].hash, tasks[1].hash, tasks[1].count);
+        rightHash = concatHash(tasks[2].hash, tasks[3].hash, tasks[3].count);
+        rightPower = power(HASH_BASE, rightLength);
+    }
+
+
+    /**
+     * Finds every occurrence of any of several patterns in the string.
+     * @param patterns
+     *   The strings to search for.
+     * @postcondition
+     *   The object is unchanged.
+     * @return
+     *   The return value lists each occurrence in order of position, where
+     *   position 0 is the first char of the string (the cursor is not counted).
+     * @exception IllegalArgumentException
+     *   Indicates that one of the patterns is empty.
+     **/
+    List<PatternMatcher.Match> findAll(Collection<String> patterns)
+    {
+        return findAll(new PatternMatcher(patterns));
+    }
+
+
+    /**
+     * Finds every occurrence of the patterns of a matcher in the string, so
+     * that one matcher can be reused to search many strings.
+     * @param matcher
+     *   The automaton for the patterns to search for.
+     * @postcondition
+     *   The object is unchanged.
+     * @return
+     *   The return value lists each occurrence in order of position.
+     **/
+    List<PatternMatcher.Match> findAll(PatternMatcher matcher)
+    {
+        return matcher.findAll(contentToArray());
+    }
+
+
+    /**
+     * Writes the string (without the cursor marker) to a file as UTF-8.
+     * @param path
+     *   The file to write.
+     * @postcondition
+     *   The file holds the current string. If path was the target of the last
+     *   save, the length of the string is unchanged, the file is pure ASCII
+     *   and its modification time and file key show that nothing else has
+     *   written it since, only the changed chars are rewritten in place.
+     *   Otherwise the string is
+     *   written to a temporary file with gathering writes, which then replaces
+     *   path. If path is a symbolic link, the file it points to is replaced
+     *   and the link is kept. A replaced file keeps its POSIX permissions,
+     *   and its owner and group where the process is allowed to set them;
+     *   other attributes (times, ACLs, extended attributes) are not copied.
+     *   A new file gets the default permissions for the process.
+     * @exception IOException
+     *   Indicates that the file could not be written.
+     **/
+    void save(Path path) throws IOException
+    {
+        boolean exists = Files.exists(path);
+        Path target = exists ? path.toRealPath() : path.toAbsolutePath();
+        int length = leftLength + rightLength;
+        if(target.equals(savedPath) && length == savedLength && savedSingleByte
+                && unchangedSinceSave(target))
+        {
+            if(dirtyFrom == Integer.MAX_VALUE || rewriteInPlace(target))
+            {
+                markSaved(target, true);
+                return;
+            }
+        }
+
+        Path temp = createTempFile(target);
+        boolean singleByte;
+        try
+        {
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE))
+            {
+                singleByte = writeAll(channel);
+                channel.force(true);
+            }
+            // Copied only once the temp file is written, since the
+            // permissions of the target may not allow this process to write.
+            if(exists)
+                copyOwnership(target, temp);
+            try
+            {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }catch(AtomicMoveNotSupportedException e)
+            {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }finally
+        {
+            Files.deleteIfExists(temp);
+        }
+        markSaved(target, singleByte);
+    }
+
+
+    /**
+     * Creates an empty file next to target to write a new version into.
+     * Unlike Files.createTempFile, this leaves the default permissions for
+     * the process on the new file.
+     * @return
+     *   The return value is the path of the new file.
+     **/
+    private static Path createTempFile(Path target) throws IOException
+    {
+        while(true)
+        {
+            Path temp = target.resolveSibling("." + target.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36)
+                    + ".tmp");
+            try
+            {
+                return Files.createFile(temp);
+            }catch(FileAlreadyExistsException e)
+            {
+                // Try another name.
+            }
+        }
+    }
+
+
+    /**
+     * Gives copy the POSIX permissions of original, and its owner and group
+     * where the process is allowed to change them.
+     * @postcondition
+     *   Nothing is changed on file systems without POSIX attributes.
+     **/
+    private static void copyOwnership(Path original, Path copy) throws IOException
+    {
+        PosixFileAttributeView originalView =
+                Files.getFileAttributeView(original, PosixFileAttributeView.class);
+        PosixFileAttributeView copyView =
+                Files.getFileAttributeView(copy, PosixFileAttributeView.class);
+        if(originalView == null || copyView == null)
+            return;
+
+        PosixFileAttributes attributes = originalView.readAttributes();
+        copyView.setPermissions(attributes.permissions());
+        try
+        {
+            copyView.setGroup(attributes.group());
+            copyView.setOwner(attributes.owner());
+        }catch(FileSystemException e)
+        {
+            // Only a privileged process can give a file away; the copy then
+            // stays owned by this process.
+        }
+    }
+
+
+    /**
+     * Overwrites the chars in [dirtyFrom, dirtyTo) at the same offsets of the
+     * saved file.
+     * @precondition
+     *   path holds a single byte per char and is as long as the string.
+     * @return
+     *   The return value is false, with the file untouched, if one of the
+     *   changed chars does not fit in a single byte.
+     **/
+    private boolean rewriteInPlace(Path path) throws IOException
+    {
+        ByteBuffer bytes = ByteBuffer.allocate(dirtyTo - dirtyFrom);
+        int offset = 0;
+        for(CharNode list : new CharNode[] { leftList, rightList })
+        {
+            for(CharNode node = list; node != null && offset < dirtyTo; node = node.getLink())
+            {
+                if(offset >= dirtyFrom)
+                {
+                    if(node.getData() >= 0x80)
+                        return false;
+                    bytes.put((byte) node.getData());
+                }
+                offset++;
+            }
+        }
+        bytes.flip();
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE))
+        {
+            long position = dirtyFrom;
+            while(bytes.hasRemaining())
+                position += channel.write(bytes, position);
+            channel.force(true);
+        }
+        return true;
+    }
+
+
+    /**
+     * Encodes the string into a batch of chunk buffers and hands each full
+     * batch to a single gathering write.
+     * @param channel
+     *   The channel to write to.
+     * @return
+     *   The return value is true if every char was written as a single byte.
+     **/
+    private boolean writeAll(FileChannel channel) throws IOException
+    {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer[] batch = new ByteBuffer[GATHER_COUNT];
+        for(int i = 0; i < batch.length; i++)
+            batch[i] = ByteBuffer.allocate((int) (CHUNK_SIZE * encoder.maxBytesPerChar()));
+        CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+        boolean singleByte = true;
+        int filled = 0;
+
+        for(CharNode list : new CharNode[] { leftList, rightList })
+        {
+            for(CharNode node = list; node != null; node = node.getLink())
+            {
+                chars.put(node.getData());
+                if(node.getData() >= 0x80)
+                    singleByte = false;
+                if(!chars.hasRemaining())
+                {
+                    // A high surrogate left unencoded stays in chars for the
+                    // next chunk.
+                    chars.flip();
+                    encoder.encode(chars, batch[filled], false);
+                    chars.compact();
+                    batch[filled].flip();
+                    filled++;
+                    if(filled == batch.length)
+                    {
+                        writeBatch(channel, batch, filled);
+                        filled = 0;
+                    }
+                }
+            }
+        }
+
+        chars.flip();
+        encoder.encode(chars, batch[filled], true);
+        encoder.flush(batch[filled]);
+        batch[filled].flip();
+        writeBatch(channel, batch, filled + 1);
+        return singleByte;
+    }
+
+
+    /**
+     * Writes the first count buffers of batch and clears them for reuse.
+     **/
+    private static void writeBatch(FileChannel channel, ByteBuffer[] batch, int count)
+            throws IOException
+    {
+        long remaining = 0;
+        for(int i = 0; i < count; i++)
+            remaining += batch[i].remaining();
+        while(remaining > 0)
+            remaining -= channel.write(batch, 0, count);
+        for(int i = 0; i < count; i++)
+            batch[i].clear();
+    }
+
+
+    /**
+     * Determines if the file at path is still the regular file the last save
+     * left there, with the same length, modification time and file key.
+     **/
+    private boolean unchangedSinceSave(Path path) throws IOException
+    {
+        if(!Files.isRegularFile(path))
+            return false;
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return attributes.size() == savedLength
+                && attributes.lastModifiedTime().equals(savedModified)
+                && savedKey != null && savedKey.equals(attributes.fileKey());
+    }
+
+
+    /**
+     * Records that the string now matches the file at path, and the
+     * attributes the file was left with.
+     **/
+    private void markSaved(Path path, boolean singleByte) throws IOException
+    {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        savedPath = path;
+        savedLength = leftLength + rightLength;
+        savedSingleByte = singleByte;
+        savedModified = attributes.lastModifiedTime();
+        savedKey = attributes.fileKey();
+        dirtyFrom = Integer.MAX_VALUE;
+        dirtyTo = -1;
+    }
+
+
+    /**
+     * Widens the changed region, shifts the anchor and updates the cache of
+     * render for count chars inserted at offset.
+     * @param inserted
+     *   The first of the inserted nodes, or null if the caller has not linked
+     *   them in one run (the cache is then dropped if they fall inside it).
+     **/
+    private void recordInsert(int offset, int count, CharNode inserted)
+    {
+        dirtyFrom = Math.min(dirtyFrom, offset);
+        dirtyTo = Math.max(dirtyTo, offset) + count;
+        if(anchor > offset)
+            anchor += count;
+
+        if(renderText == null)
+            return;
+        if(offset <= renderFrom)
+        {
+            renderFrom += count;
+        }else if(offset <= renderFrom + renderText.length())
+        {
+            if(inserted == null || renderText.length() + count > RENDER_CACHE_LIMIT)
+            {
+                renderText = null;
+                return;
+            }
+            StringBuilder chars = new StringBuilder(count);
+            CharNode node = inserted;
+            for(int i = 0; i < count; i++)
+            {
+                chars.append(node.getData());
+                node = node.getLink();
+            }
+            renderText.insert(offset - renderFrom, chars);
+        }
+    }
+
+
+    /**
+     * Widens the changed region, shifts the anchor and updates the cache of
+     * render for count chars removed from offset.
+     **/
+    private void recordDelete(int offset, int count)
+    {
+        dirtyFrom = Math.min(dirtyFrom, offset);
+        dirtyTo = Math.max(dirtyTo - count, offset);
+        if(anchor > offset)
+            anchor = Math.max(anchor - count, offset);
+
+        if(renderText == null)
+            return;
+        int renderTo = renderFrom + renderText.length();
+        if(offset + count <= renderFrom)
+        {
+            renderFrom -= count;
+        }else if(offset < renderTo)
+        {
+            // Remove the part of [offset, offset + count) that is cached.
+            renderText.delete(Math.max(offset, renderFrom) - renderFrom,
+                    Math.min(offset + count, renderTo) - renderFrom);
+            renderFrom = Math.min(renderFrom, offset);
+        }
+    }
+
+
+    /**
+     * Adds count chars with polynomial hash segmentHash to the end of
+     * leftHash.
+     **/
+    private void appendLeftHash(long segmentHash, int count)
+    {
+        leftHash = addMod(multiplyMod(leftHash, power(HASH_BASE, count)), segmentHash);
+    }
+
+
+    /**
+     * Takes the last count chars, with polynomial hash segmentHash, off the
+     * end of leftHash.
+     **/
+    private void removeLeftHash(long segmentHash, int count)
+    {
+        leftHash = multiplyMod(subtractMod(leftHash, segmentHash),
+                power(HASH_BASE_INVERSE, count));
+    }
+
+
+    /**
+     * Adds count chars with polynomial hash segmentHash to the front of
+     * rightHash.
+     **/
+    private void prependRightHash(long segmentHash, int count)
+    {
+        rightHash = addMod(rightHash, multiplyMod(segmentHash, rightPower));
+        rightPower = multiplyMod(rightPower, power(HASH_BASE, count));
+    }
+
+
+    /**
+     * Takes the first count chars, with polynomial hash segmentHash, off the
+     * front of rightHash.
+     **/
+    private void removeRightHash(long segmentHash, int count)
+    {
+        rightPower = multiplyMod(rightPower, power(HASH_BASE_INVERSE, count));
+        rightHash = subtractMod(rightHash, multiplyMod(segmentHash, rightPower));
+    }
+
+
+    /**
+     * Computes the polynomial hash of the first count nodes of a list.
+     * @param head
+     *   The head reference for a linked list with at least count nodes.
+     * @param count
+     *   The number of nodes to hash.
+     * @return
+     *   The return value is the sum of charHash of each char times HASH_BASE
+     *   to the power of the number of hashed chars after it, modulo
+     *   HASH_MODULUS.
+     **/
+    private static long hashOf(CharNode head, int count)
+    {
+        long hash = 0;
+        CharNode node = head;
+        for(int i = 0; i < count; i++)
+        {
+            hash = hashStep(hash, node.getData());
+            node = node.getLink();
+        }
+        return hash;
+    }
+
+
+    /**
+     * Computes the polynomial hash of a sequence of chars.
+     **/
+    private static long hashOf(CharSequence chars)
+    {
+        long hash = 0;
+        for(int i = 0; i < chars.length(); i++)
+            hash = hashStep(hash, chars.charAt(i));
+        return hash;
+    }
+
+
+    /**
+     * Returns the hash of one sequence followed by another of secondCount
+     * chars, given the hashes of both.
+     **/
+    private static long concatHash(long firstHash, long secondHash, int secondCount)
+    {
+        return addMod(multiplyMod(firstHash, power(HASH_BASE, secondCount)), secondHash);
+    }
+
+
+    /**
+     * Returns the hash of a sequence followed by c, given the hash of the
+     * sequence.
+     **/
+    private static long hashStep(long hash, char c)
+    {
+        return addMod(multiplyMod(hash, HASH_BASE), charHash(c));
+    }
+
+
+    /**
+     * Returns the hash of the single char c. It is c + 1 rather than c, so
+     * that no char hashes to 0: otherwise leading '\0' chars would add
+     * nothing, and "\0a" would hash the same as "a".
+     **/
+    private static long charHash(char c)
+    {
+        return c + 1;
+    }
+
+
+    /**
+     * Raises base to a power modulo HASH_MODULUS by repeated squaring.
+     * @precondition
+     *   0 <= base < HASH_MODULUS and exponent >= 0.
+     **/
+    private static long power(long base, long exponent)
+    {
+        long answer = 1;
+        while(exponent > 0)
+        {
+            if((exponent & 1) != 0)
+                answer = multiplyMod(answer, base);
+            base = multiplyMod(base, base);
+            exponent >>>= 1;
+        }
+        return answer;
+    }
+
+
+    /**
+     * Multiplies modulo HASH_MODULUS. Since 2^61 is 1 modulo 2^61 - 1, the
+     * 122-bit product reduces to the sum of its bits above and below bit 61.
+     * @precondition
+     *   0 <= a, b < HASH_MODULUS.
+     **/
+    private static long multiplyMod(long a, long b)
+    {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        long sum = ((high << 3) | (low >>> 61)) + (low & HASH_MODULUS);
+        sum = (sum & HASH_MODULUS) + (sum >>> 61);
+        return sum >= HASH_MODULUS ? sum - HASH_MODULUS : sum;
+    }
+
+
+    /**
+     * Adds modulo HASH_MODULUS.
+     * @precondition
+     *   0 <= a, b < HASH_MODULUS.
+     **/
+    private static long addMod(long a, long b)
+    {
+        long sum = a + b;
+        return sum >= HASH_MODULUS ? sum - HASH_MODULUS : sum;
+    }
+
+
+    /**
+     * Subtracts modulo HASH_MODULUS.
+     * @precondition
+     *   0 <= a, b < HASH_MODULUS.
+     **/
+    private static long subtractMod(long a, long b)
+    {
+        long difference = a - b;
+        return difference < 0 ? difference + HASH_MODULUS : difference;
+    }
+
+
+    /**
+     * Checks that [from, to) is a range of offsets within the string.
+     * @exception IllegalArgumentException
+     *   Indicates that from is negative, to is past the end of the string or
+     *   from is after to.
+     **/
+    private void checkRange(int from, int to)
+    {
+        if(from < 0 || to > leftLength + rightLength || from > to)
+            throw new IllegalArgumentException("range " + from + " to " + to
+                    + " is not within the string");
+    }
+
+
+    /**
+     * Copies the chars of the string into an array.
+     * @return
+     *   The return value holds the chars to the left of the cursor followed by
+     *   the chars to its right.
+     **/
+    private char[] contentToArray()
+    {
+        char[] chars = new char[leftLength + rightLength];
+        int i = 0;
+        for(CharNode list : new CharNode[] { leftList, rightList })
+            for(CharNode node = list; node != null; node = node.getLink())
+                chars[i++] = node.getData();
+        return chars;
+    }
+
+
+    /**
+     * Copies the chars of a list into an array.
+     * @param head
+     *   The head reference for a linked list.
+     * @param length
+     *   The number of nodes in the list.
+     * @return
+     *   The return value holds the data of each node, in order.
+     **/
+    private static char[] listToArray(CharNode head, int length)
+    {
+        char[] chars = new char[length];
+        int i = 0;
+        for(CharNode node = head; node != null; node = node.getLink())
+            chars[i++] = node.getData();
+        return chars;
+    }
+
+
+    /**
+     * Builds a linked list holding a sequence of chars.
+     * @param chars
+     *   The chars for the new list.
+     * @return
+     *   The return value is an array where the [0] element is the head
+     *   reference and the [1] element the tail reference for the new list
+     *   (both null if chars is empty).
+     **/
+    private static CharNode[] buildList(CharSequence chars)
+    {
+        CharNode[] answer = new CharNode[2];
+        if(chars.length() == 0)
+            return answer;
+
+        answer[0] = new CharNode(chars.charAt(0), null);
+        answer[1] = answer[0];
+        for(int i = 1; i < chars.length(); i++)
+        {
+            answer[1].addNodeAfter(chars.charAt(i));
+            answer[1] = answer[1].getLink();
+        }
+        return answer;
+    }
+
+
+    /**
+     * Links two lists given as head/tail pairs.
+     * @return
+     *   The return value is the head/tail pair of the first list followed by
+     *   the second.
+     **/
+    private static CharNode[] linkLists(CharNode[] first, CharNode[] second)
+    {
+        if(first[0] == null)
+            return second;
+        if(second[0] == null)
+            return first;
+        first[1].setLink(second[0]);
+        return new CharNode[] { first[0], second[1] };
+    }
+
+
+    /**
+     * A fork-join task that transforms the chars in [from, to) of an array
+     * into a new list, splitting the range in half until it is no longer than
+     * TRANSFORM_THRESHOLD. After the task completes, count holds the length of
+     * the new list and hash its polynomial hash.
+     **/
+    private static class TransformTask extends RecursiveTask<CharNode[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final char[] source;
+        private final int from;
+        private final int to;
+        private final CharTransform transform;
+        private int count;
+        private long hash;
+
+        TransformTask(char[] source, int from, int to, CharTransform transform)
+        {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+            this.transform = transform;
+        }
+
+        @Override
+        protected CharNode[] compute()
+        {
+            if(to - from <= TRANSFORM_THRESHOLD)
+            {
+                StringBuilder out = new StringBuilder(to - from);
+                for(int i = from; i < to; i++)
+                    transform.apply(source[i], out);
+                count = out.length();
+                hash = hashOf(out);
+                return buildList(out);
+            }
+
+            int middle = (from + to) >>> 1;
+            TransformTask first = new TransformTask(source, from, middle, transform);
+            TransformTask second = new TransformTask(source, middle, to, transform);
+            second.fork();
+            CharNode[] firstList = first.compute();
+            CharNode[] secondList = second.join();
+            count = first.count + second.count;
+            hash = concatHash(first.hash, second.hash, second.count);
+            return linkLists(firstList, secondList);
+        }
+    }
+
+
+    /**
+     * Returns a hash of the chars of the string, kept up to date by every
+     * edit so that it costs nothing to read.
+     * @postcondition
+     *   StringEditor object is unchanged.
+     * @return
+     *   The return value is the polynomial hash, modulo the prime 2^61 - 1,
+     *   of the chars of the string, each char counted as its value plus one.
+     *   It does not depend on the cursor position. Because no char counts as
+     *   0, two different strings of at most n chars, even of different
+     *   lengths, differ in some coefficient, so they get the same hash only
+     *   if HASH_BASE is a root of a nonzero polynomial of degree below n,
+     *   which has fewer than n roots; so for strings not built with
+     *   knowledge of HASH_BASE the chance is about n / 2^61 (below 10^-9 for
+     *   a 1 GB string). The base is fixed so that hashes agree between
+     *   processes, which also means strings could be crafted to collide;
+     *   equals always compares chars.
+     **/
+    long contentHash()
+    {
+        return addMod(multiplyMod(leftHash, rightPower), rightHash);
+    }
+
+
+    /**
+     * Determines if the string holds the same chars as a sequence, stopping at
+     * the first char that differs.
+     * @param chars
+     *   The sequence to compare with.
+     * @postcondition
+     *   StringEditor object is unchanged.
+     * @return
+     *   The return value is true if chars has the same length and chars as
+     *   the string (the cursor is not compared).
+     **/
+    boolean contentEquals(CharSequence chars)
+    {
+        if(chars.length() != leftLength + rightLength)
+            return false;
+
+        int i = 0;
+        for(CharNode list : new CharNode[] { leftList, rightList })
+            for(CharNode node = list; node != null; node = node.getLink())
+                if(node.getData() != chars.charAt(i++))
+                    return false;
+        return true;
+    }
+
+
+    /**
+     * Determines if another object is a StringEditor holding the same chars.
+     * Editors of different lengths or content hashes are told apart without
+     * reading their chars.
+     * @param other
+     *   The object to compare with.
+     * @postcondition
+     *   Both objects are unchanged.
+     * @return
+     *   The return value is true if other is a StringEditor with the same
+     *   chars, wherever the cursors of the two editors are.
+     **/
+    @Override
+    public boolean equals(Object other)
+    {
+        if(this == other)
+            return true;
+        if(!(other instanceof StringEditor))
+            return false;
+
+        StringEditor editor = (StringEditor) other;
+        int length = leftLength + rightLength;
+        if(length != editor.leftLength + editor.rightLength
+                || contentHash() != editor.contentHash())
+            return false;
+
+        // Equal hashes are checked char by char, walking both editors' lists.
+        CharNode[] lists = { leftList, rightList };
+        CharNode[] otherLists = { editor.leftList, editor.rightList };
+        int side = 0;
+        int otherSide = 0;
+        CharNode node = lists[0];
+        CharNode otherNode = otherLists[0];
+        for(int i = 0; i < length; i++)
+        {
+            while(node == null)
+                node = lists[++side];
+            while(otherNode == null)
+                otherNode = otherLists[++otherSide];
+            if(node.getData() != otherNode.getData())
+                return false;
+            node = node.getLink();
+            otherNode = otherNode.getLink();
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns a hash code consistent with equals, folded from contentHash.
+     * Because the string can change, an editor should not be edited while it
+     * is a key of a hash table.
+     * @postcondition
+     *   StringEditor object is unchanged.
+     **/
+    @Override
+    public int hashCode()
+    {
+        long hash = contentHash();
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+
+    /**
+     * Returns part of the string in the same format as toString, so that a
+     * display only formats the chars it shows.
+     *
+     * The chars around the window are cached, with a margin of up to length
+     * chars on each side as far as RENDER_CACHE_LIMIT allows, and edits
+     * update the cache in place, so redrawing after
+     * typing or after moving the cursor a little costs O(length). When the
+     * window moves past the end of the cache, the missing chars are read
+     * from the cursor onward, which costs about the distance from the cursor
+     * to the end of the window. When it moves past the front of the cache,
+     * the chars before the cursor can only be reached from the head of the
+     * singly linked left list, so that miss costs O(from + length); the
+     * margin makes it happen at most once every length chars of movement.
+     * A window longer than RENDER_CACHE_LIMIT is read from the lists every
+     * time and not kept.
+     * @param from
+     *   The offset of the first char to show.
+     * @param length
+     *   The number of chars to show.
+     * @precondition
+     *   from >= 0 and length >= 0.
+     * @postcondition
+     *   The string and the cursor are unchanged.
+     * @return
+     *   The return value holds the chars in [from, from + length) that exist,
+     *   with ^ where the cursor is if the cursor is within or at either end
+     *   of them.
+     * @exception IllegalArgumentException
+     *   Indicates that from or length is negative.
+     **/
+    String render(int from, int length)
+    {
+        if(from < 0 || length < 0)
+            throw new IllegalArgumentException("window is negative");
+
+        int total = leftLength + rightLength;
+        int to = (int) Math.min((long) from + length, total);
+        String window = "";
+        if(from < to)
+        {
+            if(to - from > RENDER_CACHE_LIMIT)
+            {
+                renderText = null;
+                fillRenderCache(from, to, 0);
+                window = renderText.toString();
+                renderText = null;
+            }else
+            {
+                if(renderText == null || from < renderFrom
+                        || to > renderFrom + renderText.length())
+                    fillRenderCache(from, to,
+                            Math.min(length, (RENDER_CACHE_LIMIT - (to - from)) / 2));
+                window = renderText.substring(from - renderFrom, to - renderFrom);
+            }
+        }
+
+        if(leftLength < from || leftLength > from + window.length())
+            return window;
+        return window.substring(0, leftLength - from) + "^"
+                + window.substring(leftLength - from);
+    }
+
+
+    /**
+     * Makes the cache of render cover [from, to) plus up to margin chars on
+     * each side. If the cache already reaches from and ends at or after the
+     * cursor, only the missing chars after it are read, starting from the
+     * cursor. Otherwise the cache is read again from the closest list head.
+     **/
+    private void fillRenderCache(int from, int to, int margin)
+    {
+        int total = leftLength + rightLength;
+        int fillFrom = Math.max(0, from - margin);
+        int fillTo = (int) Math.min((long) to + margin, total);
+
+        if(renderText != null && renderFrom <= from
+                && renderFrom + renderText.length() >= leftLength)
+        {
+            // Extend the end of the cache by walking right of the cursor,
+            // and drop the part before the new margin.
+            int offset = leftLength;
+            CharNode node = rightList;
+            for(; offset < fillTo; offset++, node = node.getLink())
+                if(offset >= renderFrom + renderText.length())
+                    renderText.append(node.getData());
+            if(fillFrom > renderFrom)
+            {
+                renderText.delete(0, fillFrom - renderFrom);
+                renderFrom = fillFrom;
+            }
+            return;
+        }
+
+        renderText = new StringBuilder(fillTo - fillFrom);
+        renderFrom = fillFrom;
+        int offset = fillFrom < leftLength ? 0 : leftLength;
+        CharNode node = fillFrom < leftLength ? leftList : rightList;
+        for(; offset < fillTo; offset++, node = node.getLink())
+        {
+            // The left list has exactly leftLength nodes.
+            if(offset == leftLength)
+                node = rightList;
+            if(offset >= fillFrom)
+                renderText.append(node.getData());
         }
     }
 
@@ -0,0 +1,716 @@
+/******************************************************************************
+ *
+ * Self-checking driver for StringEditor.java.  Unlike StringEditorTest it
+ * needs no input: it runs each operation and compares the result with the
+ * answer worked out with a plain StringBuilder, prints every check that
+ * fails and exits with status 1 if there was one.
+ *
+ * @author
+ * agent
+ *
+ * @version
+ *   October 19th, 2026
+ ******************************************************************************/
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+public class StringEditorCheck
+{
+    private static int failures = 0;
+
+
+    public static void main(String [] args) throws IOException
+    {
+        checkSave();
+        checkTransform();
+        checkFindAll();
+        checkRanges();
+        checkDiff();
+        checkRender();
+        checkHash();
+
+        if(failures == 0)
+        {
+            System.out.println("All checks passed.");
+        }else
+        {
+            System.out.println(failures + " checks failed.");
+            System.exit(1);
+        }
+    }
+
+
+    /**
+     * Records a failed check.
+     * @param condition
+     *   The result of the check.
+     * @param description
+     *   What was checked, printed if condition is false.
+     **/
+    private static void check(boolean condition, String description)
+    {
+        if(!condition)
+        {
+            failures++;
+            System.out.println("FAILED: " + description);
+        }
+    }
+
+
+    /**
+     * Returns the string of an editor without the cursor marker.
+     **/
+    private static String content(StringEditor editor)
+    {
+        String shown = editor.toString();
+        int marker = editor.cursorPosition();
+        return shown.substring(0, marker) + shown.substring(marker + 1);
+    }
+
+
+    /**
+     * Returns a random string of the letters a, b and c.
+     **/
+    private static String randomString(Random random, int length)
+    {
+        StringBuilder answer = new StringBuilder();
+        for(int i = 0; i < length; i++)
+            answer.append((char) ('a' + random.nextInt(3)));
+        return answer.toString();
+    }
+
+
+    /**
+     * Saves through a symbolic link, in place and in full, and checks the
+     * file, its permissions and the link after each save.
+     **/
+    private static void checkSave() throws IOException
+    {
+        Path directory = Files.createTempDirectory("StringEditorCheck");
+        Path file = directory.resolve("text.txt");
+        Path link = directory.resolve("link.txt");
+        try
+        {
+            Files.write(file, new byte[0]);
+            boolean posix = Files.getFileStore(file).supportsFileAttributeView("posix");
+            if(posix)
+                Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r--r--"));
+            boolean linked = true;
+            try
+            {
+                Files.createSymbolicLink(link, file);
+            }catch(UnsupportedOperationException | IOException e)
+            {
+                linked = false;
+                link = file;
+            }
+
+            StringEditor editor = new StringEditor("hello ", "world");
+            editor.save(link);
+            check(read(file).equals("hello world"), "save writes the string");
+            check(!linked || Files.isSymbolicLink(link), "save keeps a symbolic link");
+            check(!posix || PosixFilePermissions.toString(
+                    Files.getPosixFilePermissions(file)).equals("rw-r--r--"),
+                    "save keeps the permissions of the file");
+
+            // Same length: only the changed chars are rewritten.
+            editor.backspace();
+            editor.insertChar('_');
+            editor.save(link);
+            check(read(file).equals("hello_world"), "save after an in-place edit");
+
+            // Written by someone else: the next save must not patch it. The
+            // time is set back so that a coarse file system clock cannot hide
+            // the write.
+            editor.save(link);
+            Files.write(file, "ZZZZZZZZZZZ".getBytes(StandardCharsets.US_ASCII));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+            editor.endOfString();
+            editor.backspace();
+            editor.insertChar('d');
+            editor.save(link);
+            check(read(file).equals("hello_world"), "save after the file was changed outside");
+            Files.write(file, "ZZZZZZZZZZZ".getBytes(StandardCharsets.US_ASCII));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+            editor.save(link);
+            check(read(file).equals("hello_world"), "save with no edits after an outside change");
+            StringEditor other = new StringEditor("HELLO_WORLD", "");
+            other.save(link);
+            editor.backspace();
+            editor.insertChar('D');
+            editor.save(link);
+            check(read(file).equals("hello_worlD"), "save after another editor saved the file");
+
+            // New length and a char that needs two bytes.
+            editor.endOfString();
+            editor.insertChar('\u00e9');
+            editor.save(link);
+            check(read(file).equals("hello_worlD\u00e9"), "save after the length changes");
+            check(!linked || Files.isSymbolicLink(link), "a full save keeps a symbolic link");
+
+            // A read-only file is replaced and stays read-only.
+            if(posix)
+            {
+                Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("r--r--r--"));
+                editor.insertChar('!');
+                editor.save(link);
+                check(read(file).equals("hello_worlD\u00e9!"), "save of a read-only file");
+                check(PosixFilePermissions.toString(Files.getPosixFilePermissions(file))
+                        .equals("r--r--r--"), "save keeps a read-only file read-only");
+                Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r--r--"));
+            }
+
+            StringBuilder large = new StringBuilder();
+            for(int i = 0; i < 100000; i++)
+                large.append((char) ('a' + i % 26));
+            StringEditor big = new StringEditor(large.toString(), null);
+            big.save(file);
+            check(read(file).equals(large.toString()), "save of more than one gathering batch");
+        }finally
+        {
+            try(Stream<Path> files = Files.list(directory))
+            {
+                for(Path leftOver : (Iterable<Path>) files::iterator)
+                    Files.delete(leftOver);
+            }
+            Files.delete(directory);
+        }
+    }
+
+
+    /**
+     * Applies each provided transform to a string long enough to be split
+     * into several fork-join tasks, and checks the result and the cursor.
+     **/
+    private static void checkTransform()
+    {
+        StringBuilder left = new StringBuilder();
+        StringBuilder right = new StringBuilder();
+        for(int i = 0; i < 200000; i++)
+        {
+            left.append("aB\t\u0001".charAt(i % 4));
+            right.append("x y\n".charAt(i % 4));
+        }
+        StringEditor editor = new StringEditor(left.toString(), right.toString());
+
+        editor.transform(CharTransform.UPPER_CASE);
+        check(editor.toString().equals(left.toString().toUpperCase() + "^"
+                + right.toString().toUpperCase()), "transform to upper case");
+
+        editor.transform(CharTransform.LOWER_CASE);
+        editor.transform(CharTransform.STRIP_CONTROL);
+        editor.transform(CharTransform.expandTabs(2));
+        editor.transform(CharTransform.replace(Character::isWhitespace, '_'));
+        String expectedLeft = left.toString().toLowerCase().replace("\u0001", "")
+                .replace("\t", "  ").replace(' ', '_');
+        String expectedRight = right.toString().toLowerCase().replace(' ', '_')
+                .replace('\n', '_');
+        check(editor.toString().equals(expectedLeft + "^" + expectedRight),
+                "transforms that change the length keep the cursor between the same chars");
+        check(editor.cursorPosition() == expectedLeft.length()
+                && editor.length() == expectedLeft.length() + expectedRight.length(),
+                "transform updates the lengths");
+
+        StringEditor empty = new StringEditor();
+        empty.transform(CharTransform.UPPER_CASE);
+        check(empty.toString().equals("^"), "transform of an empty string");
+    }
+
+
+    /**
+     * Searches a random string long enough to be split into several chunks
+     * for overlapping ASCII and non-ASCII patterns, and compares the matches
+     * with a search for each pattern at each position.
+     **/
+    private static void checkFindAll()
+    {
+        Random random = new Random(28);
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < 300000; i++)
+            text.append("ab\u00e9\u4e2d".charAt(random.nextInt(4)));
+        List<String> patterns = Arrays.asList("ab", "bab", "\u00e9\u4e2d",
+                "a\u00e9a", "b", "\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d", "ab");
+
+        String whole = text.toString();
+        List<String> expected = new ArrayList<>();
+        for(int i = 0; i < whole.length(); i++)
+        {
+            // Distinct patterns ordered by length, as findAll orders them.
+            for(String pattern : Arrays.asList("b", "ab", "\u00e9\u4e2d", "bab", "a\u00e9a",
+                    "\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d\u4e2d"))
+                if(whole.startsWith(pattern, i))
+                    expected.add(i + ":" + pattern);
+        }
+
+        StringEditor editor = new StringEditor(whole.substring(0, 123457), whole.substring(123457));
+        List<String> found = new ArrayList<>();
+        for(PatternMatcher.Match match : editor.findAll(patterns))
+            found.add(match.toString());
+        check(found.equals(expected), "findAll finds every match in order");
+        check(new StringEditor().findAll(patterns).isEmpty(), "findAll in an empty string");
+
+        // Enough patterns that most states have no dense row.
+        List<String> many = new ArrayList<>();
+        for(int i = 0; i < 3000; i++)
+        {
+            StringBuilder pattern = new StringBuilder();
+            int length = 2 + random.nextInt(5);
+            for(int j = 0; j < length; j++)
+                pattern.append("abcd\u4e2d".charAt(random.nextInt(5)));
+            many.add(pattern.toString());
+        }
+        List<String> byLength = new ArrayList<>(new TreeSet<>(many));
+        byLength.sort(Comparator.comparingInt(String::length));
+        StringBuilder chars = new StringBuilder();
+        for(int i = 0; i < 20000; i++)
+            chars.append("abcd\u4e2d".charAt(random.nextInt(5)));
+        String sample = chars.toString();
+        expected.clear();
+        for(int i = 0; i < sample.length(); i++)
+            for(String pattern : byLength)
+                if(sample.startsWith(pattern, i))
+                    expected.add(i + ":" + pattern);
+        found.clear();
+        for(PatternMatcher.Match match : new StringEditor(sample, "").findAll(many))
+            found.add(match.toString());
+        check(found.equals(expected), "findAll with thousands of patterns");
+
+        boolean rejected = false;
+        try
+        {
+            editor.findAll(Arrays.asList("a", ""));
+        }catch(IllegalArgumentException e)
+        {
+            rejected = true;
+        }
+        check(rejected, "findAll rejects an empty pattern");
+    }
+
+
+    /**
+     * Runs random cursor moves, edits and range operations on an editor and
+     * on a StringBuilder with a cursor and anchor offset, comparing the two
+     * after every step.
+     **/
+    private static void checkRanges()
+    {
+        Random random = new Random(29);
+        for(int trial = 0; trial < 200; trial++)
+        {
+            StringBuilder model = new StringBuilder(randomString(random, 20));
+            int cursor = random.nextInt(model.length() + 1);
+            int anchor = -1;
+            StringEditor editor = new StringEditor(model.substring(0, cursor),
+                    model.substring(cursor));
+            CharNode[] clipboard = new CharNode[2];
+            String clipboardText = "";
+
+            for(int step = 0; step < 50; step++)
+            {
+                int from = random.nextInt(model.length() + 1);
+                int to = from + random.nextInt(model.length() - from + 1);
+                int operation = random.nextInt(9);
+                switch(operation)
+                {
+                    case 0:
+                        editor.moveCursorTo(from);
+                        cursor = from;
+                        break;
+                    case 1:
+                        editor.deleteRange(from, to);
+                        model.delete(from, to);
+                        if(cursor >= to)
+                            cursor -= to - from;
+                        else if(cursor > from)
+                            cursor = from;
+                        if(anchor > from)
+                            anchor = Math.max(anchor - (to - from), from);
+                        break;
+                    case 2:
+                        clipboard = editor.copyRange(from, to);
+                        clipboardText = model.substring(from, to);
+                        break;
+                    case 3:
+                        editor.paste(clipboard);
+                        model.insert(cursor, clipboardText);
+                        if(anchor > cursor)
+                            anchor += clipboardText.length();
+                        cursor += clipboardText.length();
+                        break;
+                    case 4:
+                        editor.setAnchor();
+                        anchor = cursor;
+                        break;
+                    case 5:
+                        if(anchor < 0)
+                            break;
+                        int low = Math.min(anchor, cursor);
+                        int high = Math.max(anchor, cursor);
+                        check(listString(editor.copy()[0]).equals(model.substring(low, high)),
+                                "copy returns the selection");
+                        clipboard = editor.cut();
+                        clipboardText = model.substring(low, high);
+                        model.delete(low, high);
+                        cursor = low;
+                        anchor = -1;
+                        break;
+                    case 6:
+                        char c = (char) ('A' + random.nextInt(26));
+                        editor.insertChar(c);
+                        model.insert(cursor, c);
+                        if(anchor > cursor)
+                            anchor++;
+                        cursor++;
+                        break;
+                    case 7:
+                        editor.transform(CharTransform.LOWER_CASE);
+                        model.replace(0, model.length(), model.toString().toLowerCase());
+                        break;
+                    default:
+                        if(cursor == 0)
+                            break;
+                        editor.backspace();
+                        model.deleteCharAt(--cursor);
+                        if(anchor > cursor)
+                            anchor = Math.max(anchor - 1, cursor);
+                        break;
+                }
+
+                String expected = model.substring(0, cursor) + "^" + model.substring(cursor);
+                if(!editor.toString().equals(expected) || editor.length() != model.length()
+                        || editor.hasSelection() != (anchor >= 0))
+                {
+                    check(false, "range operation " + operation + " gave " + editor
+                            + " instead of " + expected);
+                    return;
+                }
+            }
+        }
+
+        // A transform keeps the selection on the chars it held, even when
+        // the chars change length.
+        StringEditor selected = new StringEditor("he", "llo world");
+        selected.setAnchor();
+        selected.moveCursorTo(4);
+        selected.transform(CharTransform.UPPER_CASE);
+        check(listString(selected.copy()[0]).equals("LL"), "transform keeps a selection");
+        selected = new StringEditor("a\tb\tc", "\td");
+        selected.moveCursorTo(1);
+        selected.setAnchor();
+        selected.moveCursorTo(6);
+        selected.transform(CharTransform.expandTabs(4));
+        check(listString(selected.copy()[0]).equals("    b    c    "),
+                "transform moves the anchor past expanded chars");
+        selected = new StringEditor("\tx\ty", "");
+        selected.setAnchor();
+        selected.moveCursorTo(1);
+        selected.transform(CharTransform.expandTabs(2));
+        check(listString(selected.copy()[0]).equals("x  y") && selected.cursorPosition() == 2,
+                "transform moves an anchor right of the cursor");
+
+        boolean rejected = false;
+        try
+        {
+            new StringEditor("ab", null).deleteRange(1, 3);
+        }catch(IllegalArgumentException e)
+        {
+            rejected = true;
+        }
+        check(rejected, "deleteRange rejects a range past the end");
+    }
+
+
+    /**
+     * Diffs random pairs of strings, checks that each edit script is as
+     * short as the longest common subsequence allows, and that applying it
+     * gives the newer string with the cursor next to the same chars.
+     **/
+    private static void checkDiff()
+    {
+        Random random = new Random(30);
+        for(int trial = 0; trial < 2000; trial++)
+        {
+            String older = randomString(random, random.nextInt(25));
+            StringBuilder newer = new StringBuilder(random.nextBoolean()
+                    ? randomString(random, random.nextInt(25)) : older);
+            for(int i = random.nextInt(4); i > 0; i--)
+            {
+                int position = random.nextInt(newer.length() + 1);
+                if(random.nextBoolean() && position < newer.length())
+                    newer.deleteCharAt(position);
+                else
+                    newer.insert(position, 'z');
+            }
+
+            int cursor = random.nextInt(older.length() + 1);
+            StringEditor editor = new StringEditor(older.substring(0, cursor),
+                    older.substring(cursor));
+            List<StringDiff.Edit> patch = editor.diff(new StringEditor(newer.toString(), null));
+            int cost = 0;
+            for(StringDiff.Edit edit : patch)
+                cost += edit.getDeleteCount() + edit.getInsert().length();
+            if(cost != editDistance(older, newer.toString()))
+            {
+                check(false, "diff of " + older + " and " + newer + " is not minimal: " + patch);
+                return;
+            }
+
+            editor.applyPatch(patch);
+            if(!content(editor).equals(newer.toString()))
+            {
+                check(false, "applyPatch of " + patch + " to " + older + " gave " + editor);
+                return;
+            }
+        }
+
+        // Two long strings that differ in three places.
+        StringBuilder large = new StringBuilder(randomString(random, 1000000));
+        StringEditor older = new StringEditor(large.toString(), null);
+        large.setCharAt(1000, '#');
+        large.insert(600000, "XYZ");
+        large.delete(900000, 900010);
+        StringEditor newer = new StringEditor(large.toString(), null);
+        List<StringDiff.Edit> patch = older.diff(newer);
+        int cost = 0;
+        for(StringDiff.Edit edit : patch)
+            cost += edit.getDeleteCount() + edit.getInsert().length();
+        check(cost == 2 + 3 + 10, "diff of long strings finds each change: " + patch);
+        older.applyPatch(patch);
+        check(older.contentEquals(large), "applyPatch of long strings");
+        check(older.diff(newer).isEmpty(), "diff of equal strings is empty");
+    }
+
+
+    /**
+     * Draws windows around the cursor, as StringEditorTest does, and at
+     * random offsets while making random edits, and compares each window
+     * with the matching part of toString.
+     **/
+    private static void checkRender()
+    {
+        Random random = new Random(31);
+        StringEditor editor = new StringEditor(randomString(random, 300), randomString(random, 300));
+        CharNode[] clipboard = editor.copyRange(10, 30);
+        for(int step = 0; step < 20000; step++)
+        {
+            int operation = random.nextInt(10);
+            switch(operation)
+            {
+                case 0:
+                case 1:
+                case 2:
+                    editor.insertChar((char) ('A' + random.nextInt(26)));
+                    break;
+                case 3:
+                    editor.backspace();
+                    break;
+                case 4:
+                    editor.deleteChar();
+                    break;
+                case 5:
+                    editor.moveCursorRight();
+                    break;
+                case 6:
+                    editor.moveCursorLeft();
+                    break;
+                case 7:
+                    editor.moveCursorTo(random.nextInt(editor.length() + 1));
+                    break;
+                case 8:
+                    int from = random.nextInt(editor.length() + 1);
+                    if(random.nextBoolean())
+                        editor.deleteRange(from, Math.min(editor.length(), from + random.nextInt(5)));
+                    else
+                        editor.paste(clipboard);
+                    break;
+                default:
+                    if(random.nextInt(20) == 0)
+                        editor.transform(CharTransform.LOWER_CASE);
+                    break;
+            }
+
+            int from = random.nextInt(4) == 0 ? random.nextInt(editor.length() + 10)
+                    : Math.max(0, editor.cursorPosition() - 40);
+            int length = random.nextInt(4) == 0 ? random.nextInt(100) : 80;
+            String shown = editor.toString();
+            int cursor = editor.cursorPosition();
+            int to = Math.min(from + length, editor.length());
+            String expected = "";
+            if(from < to)
+                expected = content(editor).substring(from, to);
+            if(cursor >= from && cursor <= from + expected.length())
+                expected = shown.substring(from, from + expected.length() + 1);
+            String rendered = editor.render(from, length);
+            if(!rendered.equals(expected))
+            {
+                check(false, "render(" + from + ", " + length + ") after operation "
+                        + operation + " gave " + rendered + " instead of " + expected);
+                return;
+            }
+        }
+
+        // Windows longer than the cache limit, before and after an edit.
+        String text = randomString(random, 200000);
+        StringEditor large = new StringEditor(text.substring(0, 100000), text.substring(100000));
+        check(large.render(0, 150000).equals(text.substring(0, 100000) + "^"
+                + text.substring(100000, 150000)), "render of a window past the cache limit");
+        large.insertChar('Z');
+        check(large.render(99990, 20).equals(text.substring(99990, 100000) + "Z^"
+                + text.substring(100000, 100009)), "render after a window past the cache limit");
+        check(large.render(0, 200001).equals(content(large).substring(0, 100001) + "^"
+                + text.substring(100000)), "render of the whole string");
+    }
+
+
+    /**
+     * Checks that contentHash, hashCode, equals and contentEquals agree with
+     * an editor built fresh from the same chars after every kind of edit,
+     * that the Thue-Morse strings, which collide for any polynomial hash
+     * taken modulo 2^64, hash differently, and that leading '\0' chars change
+     * the hash.
+     **/
+    private static void checkHash()
+    {
+        StringBuilder thue = new StringBuilder("a");
+        StringBuilder morse = new StringBuilder("b");
+        while(thue.length() < 2048)
+        {
+            String t = thue.toString();
+            thue.append(morse);
+            morse.append(t);
+        }
+        StringEditor first = new StringEditor(thue.toString(), "");
+        StringEditor second = new StringEditor(morse.toString(), "");
+        check(first.contentHash() != second.contentHash(), "Thue-Morse strings share a hash");
+        check(!first.equals(second), "Thue-Morse strings are equal");
+
+        // Leading '\0' chars must change the hash.
+        String[] zeros = { "", "\0", "\0\0", "a", "\0a", "\0\0a" };
+        for(int i = 0; i < zeros.length; i++)
+            for(int j = i + 1; j < zeros.length; j++)
+                check(new StringEditor(zeros[i], "").contentHash()
+                        != new StringEditor("", zeros[j]).contentHash(),
+                        "strings " + i + " and " + j + " with leading '\\0' share a hash");
+        StringEditor zero = new StringEditor("", "a");
+        zero.insertChar('\0');
+        check(zero.contentHash() != new StringEditor("a", "").contentHash(),
+                "inserting '\\0' changes the hash");
+
+        Random random = new Random(32);
+        StringEditor editor = new StringEditor(randomString(random, 50), randomString(random, 50));
+        CharNode[] clipboard = editor.copyRange(5, 25);
+        for(int step = 0; step < 5000; step++)
+        {
+            int operation = random.nextInt(11);
+            int from = random.nextInt(editor.length() + 1);
+            switch(operation)
+            {
+                case 0:
+                case 1:
+                    editor.insertChar("\0ab".charAt(random.nextInt(3)));
+                    break;
+                case 2:
+                    editor.backspace();
+                    break;
+                case 3:
+                    editor.deleteChar();
+                    break;
+                case 4:
+                    editor.moveCursorLeft();
+                    break;
+                case 5:
+                    editor.moveCursorRight();
+                    break;
+                case 6:
+                    editor.moveCursorTo(from);
+                    break;
+                case 7:
+                    if(random.nextBoolean())
+                        editor.frontOfString();
+                    else
+                        editor.endOfString();
+                    break;
+                case 8:
+                    if(random.nextBoolean())
+                        editor.paste(clipboard);
+                    else
+                        editor.deleteRange(from, Math.min(editor.length(), from + random.nextInt(5)));
+                    break;
+                case 9:
+                    if(random.nextInt(10) == 0)
+                        editor.transform(random.nextBoolean() ? CharTransform.UPPER_CASE
+                                : CharTransform.LOWER_CASE);
+                    break;
+                default:
+                    String text = content(editor);
+                    char[] target = (text.substring(0, from) + randomString(random, 3)
+                            + text.substring(from)).toCharArray();
+                    editor.applyPatch(StringDiff.diff(text.toCharArray(), target));
+                    break;
+            }
+
+            String text = content(editor);
+            int split = random.nextInt(text.length() + 1);
+            StringEditor fresh = new StringEditor(text.substring(0, split), text.substring(split));
+            if(editor.contentHash() != fresh.contentHash() || editor.hashCode() != fresh.hashCode()
+                    || !editor.equals(fresh) || !editor.contentEquals(text))
+            {
+                check(false, "hash or equality after operation " + operation + " on " + text);
+                return;
+            }
+            if(text.length() > 0)
+            {
+                String changed = (char) (text.charAt(0) + 1) + text.substring(1);
+                check(!editor.contentEquals(changed), "contentEquals ignored the first char");
+                check(!editor.equals(new StringEditor(changed, "")), "equals ignored the first char");
+            }
+        }
+    }
+
+
+    /**
+     * Returns the number of insertions and deletions needed to turn a into
+     * b, from the length of their longest common subsequence.
+     **/
+    private static int editDistance(String a, String b)
+    {
+        int[][] common = new int[a.length() + 1][b.length() + 1];
+        for(int i = 1; i <= a.length(); i++)
+            for(int j = 1; j <= b.length(); j++)
+                common[i][j] = a.charAt(i - 1) == b.charAt(j - 1) ? common[i - 1][j - 1] + 1
+                        : Math.max(common[i - 1][j], common[i][j - 1]);
+        return a.length() + b.length() - 2 * common[a.length()][b.length()];
+    }
+
+
+    /**
+     * Returns the chars of a list.
+     **/
+    private static String listString(CharNode head)
+    {
+        StringBuilder answer = new StringBuilder();
+        for(CharNode node = head; node != null; node = node.getLink())
+            answer.append(node.getData());
+        return answer.toString();
+    }
+
+
+    /**
+     * Reads a file as UTF-8.
+     **/
+    private static String read(Path file) throws IOException
+    {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -19,6 +19,8 @@ import java.util.Scanner;
 
 public class StringEditorTest
 {
+    // Number of chars shown on each side of the cursor after an edit.
+    private static final int WINDOW = 40;
 
     public static void main(String [] args)
     {
@@ -75,7 +77,8 @@ public class StringEditorTest
                     workingString.backspace();
                     break;
             }
-            System.out.println(workingString.toString());
+            int from = Math.max(0, workingString.cursorPosition() - WINDOW);
+            System.out.println(workingString.render(from, 2 * WINDOW));
         }
     }
 }